@@ -11,11 +11,17 @@ public class PullMessageResult implements Serializable {
     private final Message message;
     private final String receiptHandle;
     private final Instant receiptDate;
+    private final Instant visibilityDeadline;
 
     public PullMessageResult(Message message, String receiptHandle, Instant receiptDate) {
+        this(message, receiptHandle, receiptDate, null);
+    }
+
+    public PullMessageResult(Message message, String receiptHandle, Instant receiptDate, Instant visibilityDeadline) {
         this.message = message;
         this.receiptHandle = receiptHandle;
         this.receiptDate = receiptDate;
+        this.visibilityDeadline = visibilityDeadline;
     }
 
     public Message getMessage() {
@@ -30,6 +36,21 @@ public class PullMessageResult implements Serializable {
         return receiptDate;
     }
 
+    /**
+     * @return the moment when the message becomes visible again
+     * or {@code null} if it is unknown for this result.
+     */
+    public Instant getVisibilityDeadline() {
+        return visibilityDeadline;
+    }
+
+    /**
+     * @return copy of this result with the specified visibility deadline.
+     */
+    public PullMessageResult withVisibilityDeadline(Instant visibilityDeadline) {
+        return new PullMessageResult(message, receiptHandle, receiptDate, visibilityDeadline);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -37,11 +58,12 @@ public class PullMessageResult implements Serializable {
         PullMessageResult that = (PullMessageResult) o;
         return Objects.equals(message, that.message) &&
                 Objects.equals(receiptHandle, that.receiptHandle) &&
-                Objects.equals(receiptDate, that.receiptDate);
+                Objects.equals(receiptDate, that.receiptDate) &&
+                Objects.equals(visibilityDeadline, that.visibilityDeadline);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(message, receiptHandle, receiptDate);
+        return Objects.hash(message, receiptHandle, receiptDate, visibilityDeadline);
     }
 }
@@ -3,8 +3,40 @@ package com.example.service;
 import com.example.model.PullMessageResult;
 import com.example.model.PushMessageResult;
 
+import java.time.Duration;
+import java.util.List;
+
 public interface QueueService {
 
+    /**
+     * Creates a new queue with the specified name if it does not exist yet.
+     * Queues are also created implicitly on the first {@link #push}.
+     *
+     * @param queueName The name of the queue.
+     * @return The URL of the created or already existing queue.
+     */
+    String createQueue(String queueName);
+
+    /**
+     * Deletes the specified queue with all its messages, including the hidden ones.
+     *
+     * @param queueUrl The URL of the queue.
+     */
+    void deleteQueue(String queueUrl);
+
+    /**
+     * Deletes all messages from the specified queue, including the hidden ones.
+     * The queue itself remains.
+     *
+     * @param queueUrl The URL of the queue.
+     */
+    void purgeQueue(String queueUrl);
+
+    /**
+     * @return The URLs of all existing queues.
+     */
+    List<String> listQueues();
+
     /**
      * Pushes the specified message to the specified queue.
      *
@@ -15,6 +47,20 @@ public interface QueueService {
      */
     PushMessageResult push(String queueUrl, String messageBody);
 
+    /**
+     * Pushes the specified message to the specified queue unless a message with the same
+     * deduplication ID was already pushed to this queue within the deduplication window.
+     * It makes retries of the producer safe, the duplicate is not pushed again.
+     *
+     * @param queueUrl        The URL of the queue.
+     * @param messageBody     The message to send.
+     * @param deduplicationId The ID of 1 to 128 characters that identifies duplicates,
+     *                        {@code null} disables deduplication.
+     * @return PushMessageResult with generated message ID or with ID of the already pushed message.
+     * @see #push(String, String)
+     */
+    PushMessageResult push(String queueUrl, String messageBody, String deduplicationId);
+
     /**
      * Retrieves a single message from the specified queue.
      * After retrieving the message becomes invisible for a certain time
@@ -27,6 +73,31 @@ public interface QueueService {
      */
     PullMessageResult pull(String queueUrl);
 
+    /**
+     * Retrieves a single message from the specified queue
+     * and hides it for the specified time instead of the default visibility timeout.
+     *
+     * @param queueUrl          The URL of the queue.
+     * @param visibilityTimeout The time during which the message is invisible for another consumers.
+     * @return PullMessageResult with single message and generated receiptHandle that can be used for deleting
+     * or {@code null} if the queue with this url does not exists or it is empty.
+     * @see #pull(String)
+     */
+    PullMessageResult pull(String queueUrl, Duration visibilityTimeout);
+
+    /**
+     * Changes the visibility timeout of the received message, counting from now.
+     * It allows the consumer to extend the processing time of a long-running job (heartbeat)
+     * without the message being re-delivered, or to return the message immediately with zero timeout.
+     *
+     * @param queueUrl          The URL of the queue.
+     * @param receiptHandle     The receipt handle that was received using {@link #pull}
+     * @param visibilityTimeout The new visibility timeout, zero makes the message visible immediately.
+     * @return {@code true} if the visibility was changed
+     * or {@code false} if the message is not hidden anymore under this receipt handle.
+     */
+    boolean changeVisibility(String queueUrl, String receiptHandle, Duration visibilityTimeout);
+
     /**
      * Deletes the specified message from the specified queue.
      *
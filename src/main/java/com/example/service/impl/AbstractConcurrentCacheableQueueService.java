@@ -8,6 +8,7 @@ import com.google.common.cache.Cache;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
@@ -18,6 +19,8 @@ import java.util.concurrent.locks.ReentrantLock;
  * This class provides a skeletal implementation of the {@code QueueService}
  * interface, represents messages as {@code BlockingDeque}
  * and hidden messages as {@code Cache}.
+ * Each hidden message keeps its own visibility deadline,
+ * so it can be pulled with a custom timeout and rescheduled by {@link #changeVisibility}.
  * To implement a service, the programmer should override methods
  * for reading and writing this data structures.
  * <p>
@@ -27,15 +30,24 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public abstract class AbstractConcurrentCacheableQueueService implements QueueService {
 
+    public static final Duration DEFAULT_DEDUPLICATION_WINDOW = Duration.ofMinutes(5);
+
     protected final Duration visibilityTimeout;
+    protected final Duration deduplicationWindow;
 
     private final Lock lock = new ReentrantLock();
 
     protected AbstractConcurrentCacheableQueueService(Duration visibilityTimeout) {
-        if (visibilityTimeout.isNegative() || visibilityTimeout.isZero()) {
-            throw new IllegalArgumentException("Invalid visibility timeout");
+        this(visibilityTimeout, DEFAULT_DEDUPLICATION_WINDOW);
+    }
+
+    protected AbstractConcurrentCacheableQueueService(Duration visibilityTimeout, Duration deduplicationWindow) {
+        checkVisibilityTimeout(visibilityTimeout);
+        if (deduplicationWindow.isNegative() || deduplicationWindow.isZero()) {
+            throw new IllegalArgumentException("Invalid deduplication window");
         }
         this.visibilityTimeout = visibilityTimeout;
+        this.deduplicationWindow = deduplicationWindow;
     }
 
     protected abstract BlockingDeque<Message> readQueue(String queueUrl);
@@ -48,17 +60,91 @@ public abstract class AbstractConcurrentCacheableQueueService implements QueueSe
 
     protected abstract Cache<String, PullMessageResult> buildCache(String queueUrl);
 
+    protected abstract void removeQueue(String queueUrl);
+
+    protected abstract List<String> readQueueUrls();
+
+    /**
+     * Returns deduplication index of the queue, creating it with {@link #deduplicationWindow} if it does not exist.
+     * The index writes its entries to its own {@code DeduplicationIndex.Store}.
+     */
+    protected abstract DeduplicationIndex readDeduplicationIndex(String queueUrl);
+
+    @Override
+    public String createQueue(String queueName) {
+        lock.lock();
+        try {
+            if (readQueue(queueName) == null) {
+                initializeQueue(queueName);
+            }
+            return queueName;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteQueue(String queueUrl) {
+        lock.lock();
+        try {
+            removeQueue(queueUrl);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void purgeQueue(String queueUrl) {
+        lock.lock();
+        try {
+            if (readQueue(queueUrl) != null) {
+                initializeQueue(queueUrl);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> listQueues() {
+        lock.lock();
+        try {
+            return readQueueUrls();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public PushMessageResult push(String queueUrl, String messageBody) {
+        return push(queueUrl, messageBody, null);
+    }
+
+    @Override
+    public PushMessageResult push(String queueUrl, String messageBody, String deduplicationId) {
         lock.lock();
         try {
+            DeduplicationIndex deduplicationIndex = null;
+            if (deduplicationId != null) {
+                DeduplicationIndex.checkDeduplicationId(deduplicationId);
+                deduplicationIndex = readDeduplicationIndex(queueUrl);
+                String pushedMessageId = deduplicationIndex.getMessageId(deduplicationId, Instant.now());
+                if (pushedMessageId != null) {
+                    return new PushMessageResult(pushedMessageId);
+                }
+            }
+
             BlockingDeque<Message> messageQueue = readQueue(queueUrl);
             if (messageQueue == null) {
-                messageQueue = createQueue(queueUrl);
+                messageQueue = initializeQueue(queueUrl);
             }
             String messageId = UUID.randomUUID().toString();
             messageQueue.addLast(new Message(messageBody, messageId));
             writeQueue(queueUrl, messageQueue);
+
+            if (deduplicationIndex != null) {
+                deduplicationIndex.put(deduplicationId, messageId, Instant.now());
+            }
             return new PushMessageResult(messageId);
         } finally {
             lock.unlock();
@@ -67,6 +153,12 @@ public abstract class AbstractConcurrentCacheableQueueService implements QueueSe
 
     @Override
     public PullMessageResult pull(String queueUrl) {
+        return pull(queueUrl, visibilityTimeout);
+    }
+
+    @Override
+    public PullMessageResult pull(String queueUrl, Duration visibilityTimeout) {
+        checkVisibilityTimeout(visibilityTimeout);
         lock.lock();
         try {
             Cache<String, PullMessageResult> hiddenMessagesCache = readCache(queueUrl);
@@ -77,7 +169,9 @@ public abstract class AbstractConcurrentCacheableQueueService implements QueueSe
                 writeQueue(queueUrl, messages);
                 if (message != null) {
                     String receiptHandle = UUID.randomUUID().toString();
-                    PullMessageResult pullResult = new PullMessageResult(message, receiptHandle, Instant.now());
+                    Instant receiptDate = Instant.now();
+                    PullMessageResult pullResult = new PullMessageResult(message, receiptHandle, receiptDate,
+                            receiptDate.plus(visibilityTimeout));
 
                     hiddenMessagesCache.put(receiptHandle, pullResult);
                     writeCache(queueUrl, hiddenMessagesCache);
@@ -104,6 +198,35 @@ public abstract class AbstractConcurrentCacheableQueueService implements QueueSe
         }
     }
 
+    @Override
+    public boolean changeVisibility(String queueUrl, String receiptHandle, Duration visibilityTimeout) {
+        if (visibilityTimeout.isNegative()) {
+            throw new IllegalArgumentException("Invalid visibility timeout");
+        }
+        lock.lock();
+        try {
+            Cache<String, PullMessageResult> hiddenMessagesCache = readCache(queueUrl);
+            if (hiddenMessagesCache != null) {
+                PullMessageResult pullResult = hiddenMessagesCache.getIfPresent(receiptHandle);
+                if (pullResult != null) {
+                    if (visibilityTimeout.isZero()) {
+                        hiddenMessagesCache.invalidate(receiptHandle);
+                        writeCache(queueUrl, hiddenMessagesCache);
+                        restoreMessage(pullResult.getMessage(), queueUrl);
+                    } else {
+                        Instant visibilityDeadline = Instant.now().plus(visibilityTimeout);
+                        hiddenMessagesCache.put(receiptHandle, pullResult.withVisibilityDeadline(visibilityDeadline));
+                        writeCache(queueUrl, hiddenMessagesCache);
+                    }
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Restores hidden message back to the queue.
      */
@@ -120,10 +243,16 @@ public abstract class AbstractConcurrentCacheableQueueService implements QueueSe
         }
     }
 
-    private BlockingDeque<Message> createQueue(String queueUrl) {
+    private BlockingDeque<Message> initializeQueue(String queueUrl) {
         BlockingDeque<Message> messageQueue = new LinkedBlockingDeque<>();
         writeQueue(queueUrl, messageQueue);
         writeCache(queueUrl, buildCache(queueUrl));
         return messageQueue;
     }
+
+    private static void checkVisibilityTimeout(Duration visibilityTimeout) {
+        if (visibilityTimeout.isNegative() || visibilityTimeout.isZero()) {
+            throw new IllegalArgumentException("Invalid visibility timeout");
+        }
+    }
 }
\ No newline at end of file
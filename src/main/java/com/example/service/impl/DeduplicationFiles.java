@@ -0,0 +1,182 @@
+package com.example.service.impl;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is a {@code DeduplicationIndex.Store} in append-only files of the queue directory,
+ * one file per time bucket named by the bucket bounds.
+ * <p>
+ * Every push appends a single record, and a file is read only on a fingerprint hit in its bucket
+ * or to add fingerprints of new records, written by this or another service, to the index.
+ * Files are deleted when their bucket is out of the window, so services that share
+ * the storage should use the same deduplication window.
+ */
+class DeduplicationFiles implements DeduplicationIndex.Store {
+
+    private static final char BOUNDS_SEPARATOR = '-';
+
+    private final File directory;
+    private final long windowMillis;
+    private final long bucketMillis;
+    private final Map<String, Long> readLengthsByFileName = new HashMap<>();
+
+    DeduplicationFiles(File directory, Duration window) {
+        this.directory = directory;
+        this.windowMillis = window.toMillis();
+        this.bucketMillis = DeduplicationIndex.bucketMillis(window);
+        directory.mkdirs();
+    }
+
+    @Override
+    public void put(String deduplicationId, String messageId, Instant pushDate) {
+        long pushMillis = pushDate.toEpochMilli();
+        long bucketStart = pushMillis - Math.floorMod(pushMillis, bucketMillis);
+        File bucketFile = new File(directory, String.valueOf(bucketStart) + BOUNDS_SEPARATOR + (bucketStart + bucketMillis));
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream recordOutput = new DataOutputStream(record);
+            recordOutput.writeLong(pushMillis);
+            recordOutput.writeUTF(deduplicationId);
+            recordOutput.writeUTF(messageId);
+            if (!append(bucketFile, record.toByteArray())) {
+                // the directory was deleted with the queue by another service
+                directory.mkdirs();
+                append(bucketFile, record.toByteArray());
+            }
+        } catch (IOException e) {
+            // the message is pushed anyway, only its deduplication is lost
+        }
+    }
+
+    /**
+     * Reads only files that overlap the bucket, with the same window it is the file of this bucket.
+     */
+    @Override
+    public String getMessageId(String deduplicationId, Instant bucketStart, Instant bucketEnd) {
+        long startMillis = bucketStart.toEpochMilli();
+        long endMillis = bucketEnd.toEpochMilli();
+        String[] foundMessageId = new String[1];
+        for (File bucketFile : listBucketFiles()) {
+            if (bucketStart(bucketFile) < endMillis && bucketEnd(bucketFile) > startMillis) {
+                readRecords(bucketFile, 0, (pushMillis, recordDeduplicationId, messageId) -> {
+                    if (pushMillis >= startMillis && pushMillis < endMillis
+                            && recordDeduplicationId.equals(deduplicationId)) {
+                        foundMessageId[0] = messageId;
+                    }
+                });
+                if (foundMessageId[0] != null) {
+                    return foundMessageId[0];
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void expire(Instant before) {
+        long beforeMillis = before.toEpochMilli();
+        for (File bucketFile : listBucketFiles()) {
+            if (bucketEnd(bucketFile) <= beforeMillis) {
+                bucketFile.delete();
+                readLengthsByFileName.remove(bucketFile.getName());
+            }
+        }
+    }
+
+    /**
+     * Adds fingerprints of records appended since the previous call to the index,
+     * and deletes files that are out of the window.
+     */
+    void readNewRecords(DeduplicationIndex deduplicationIndex, Instant now) {
+        expire(now.minusMillis(windowMillis + bucketMillis));
+        for (File bucketFile : listBucketFiles()) {
+            String fileName = bucketFile.getName();
+            long readLength = readLengthsByFileName.getOrDefault(fileName, 0L);
+            if (bucketFile.length() > readLength) {
+                long newReadLength = readRecords(bucketFile, readLength, (pushMillis, deduplicationId, messageId) ->
+                        deduplicationIndex.addFingerprint(deduplicationId, Instant.ofEpochMilli(pushMillis), now));
+                readLengthsByFileName.put(fileName, newReadLength);
+            }
+        }
+    }
+
+    private File[] listBucketFiles() {
+        File[] bucketFiles = directory.listFiles((dir, name) -> name.indexOf(BOUNDS_SEPARATOR) > 0);
+        return bucketFiles != null ? bucketFiles : new File[0];
+    }
+
+    /**
+     * Appends the whole record by a single write, so concurrent appends do not interleave.
+     *
+     * @return {@code false} if the file can not be opened.
+     */
+    private static boolean append(File bucketFile, byte[] record) throws IOException {
+        try (FileOutputStream fileOutput = new FileOutputStream(bucketFile, true)) {
+            fileOutput.write(record);
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static long bucketStart(File bucketFile) {
+        String fileName = bucketFile.getName();
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.indexOf(BOUNDS_SEPARATOR)));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static long bucketEnd(File bucketFile) {
+        String fileName = bucketFile.getName();
+        try {
+            return Long.parseLong(fileName.substring(fileName.indexOf(BOUNDS_SEPARATOR) + 1));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Reads records from the specified offset to the last complete one.
+     *
+     * @return offset after the last complete record.
+     */
+    private static long readRecords(File bucketFile, long offset, RecordConsumer consumer) {
+        long completeLength = offset;
+        try (CountingInputStream countingInput =
+                     new CountingInputStream(new BufferedInputStream(new FileInputStream(bucketFile)))) {
+            ByteStreams.skipFully(countingInput, offset);
+            DataInputStream recordInput = new DataInputStream(countingInput);
+            while (true) {
+                long pushMillis = recordInput.readLong();
+                String deduplicationId = recordInput.readUTF();
+                String messageId = recordInput.readUTF();
+                consumer.accept(pushMillis, deduplicationId, messageId);
+                completeLength = countingInput.getCount();
+            }
+        } catch (IOException e) {
+            // end of file or incomplete record that is still being appended
+            return completeLength;
+        }
+    }
+
+    private interface RecordConsumer {
+        void accept(long pushMillis, String deduplicationId, String messageId);
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.service.impl;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class is an index of deduplication IDs of pushed messages within a time window.
+ * <p>
+ * Only 64-bit fingerprints of the IDs are kept in the index, grouped into time buckets,
+ * so expired fingerprints are dropped as whole buckets without per-entry timers.
+ * Deduplication IDs with their message IDs are kept in a {@link Store}, which is consulted
+ * only for the bucket where the fingerprint is found, so a new ID usually costs a few array reads,
+ * a retry costs a read of one bucket, and a fingerprint collision is resolved by the exact check
+ * in the store and continues with later buckets.
+ * <p>
+ * The window is not part of the stored state, the index applies the window it was created with.
+ * An ID is remembered for at least the window and at most one bucket longer.
+ * This class is not thread-safe.
+ */
+public class DeduplicationIndex {
+
+    public static final int MAX_DEDUPLICATION_ID_LENGTH = 128;
+
+    private static final int BUCKET_COUNT = 16;
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * Exact storage of deduplication IDs with the IDs of pushed messages.
+     */
+    public interface Store {
+
+        void put(String deduplicationId, String messageId, Instant pushDate);
+
+        /**
+         * @return ID of the message pushed with the specified deduplication ID within the time bucket
+         * from {@code bucketStart} inclusive to {@code bucketEnd} exclusive
+         * or {@code null} if there is no such message.
+         */
+        String getMessageId(String deduplicationId, Instant bucketStart, Instant bucketEnd);
+
+        /**
+         * Allows the store to drop entries pushed before the specified date.
+         */
+        void expire(Instant before);
+    }
+
+    private final long windowMillis;
+    private final long bucketMillis;
+    private final Store store;
+    private final ToLongFunction<String> fingerprintFunction;
+    private final NavigableMap<Long, FingerprintSet> bucketsByStart = new TreeMap<>();
+
+    /**
+     * Creates the index with exact entries kept in memory.
+     */
+    public DeduplicationIndex(Duration window) {
+        this(window, new InMemoryStore());
+    }
+
+    public DeduplicationIndex(Duration window, Store store) {
+        this(window, store, DeduplicationIndex::fingerprint);
+    }
+
+    DeduplicationIndex(Duration window, Store store, ToLongFunction<String> fingerprintFunction) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Invalid deduplication window");
+        }
+        this.windowMillis = window.toMillis();
+        this.bucketMillis = bucketMillis(window);
+        this.store = store;
+        this.fingerprintFunction = fingerprintFunction;
+    }
+
+    public static void checkDeduplicationId(String deduplicationId) {
+        if (deduplicationId.isEmpty() || deduplicationId.length() > MAX_DEDUPLICATION_ID_LENGTH) {
+            throw new IllegalArgumentException("Invalid deduplication ID");
+        }
+    }
+
+    /**
+     * @return width of the time bucket for the specified window.
+     */
+    public static long bucketMillis(Duration window) {
+        return Math.max(1, window.toMillis() / BUCKET_COUNT);
+    }
+
+    /**
+     * @return ID of the message that was pushed with the specified deduplication ID within the window
+     * or {@code null} if there is no such message.
+     */
+    public String getMessageId(String deduplicationId, Instant now) {
+        expire(now);
+        long fingerprint = fingerprintFunction.applyAsLong(deduplicationId);
+        for (Map.Entry<Long, FingerprintSet> bucket : bucketsByStart.entrySet()) {
+            if (bucket.getValue().contains(fingerprint)) {
+                long bucketStart = bucket.getKey();
+                String messageId = store.getMessageId(deduplicationId,
+                        Instant.ofEpochMilli(bucketStart), Instant.ofEpochMilli(bucketStart + bucketMillis));
+                if (messageId != null) {
+                    return messageId;
+                }
+                // fingerprint collision, the ID may still be in a later bucket
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remembers the deduplication ID in the index and in the store.
+     */
+    public void put(String deduplicationId, String messageId, Instant now) {
+        addFingerprint(deduplicationId, now, now);
+        store.put(deduplicationId, messageId, now);
+    }
+
+    /**
+     * Remembers only the fingerprint of the deduplication ID that is already in the store,
+     * it is used to rebuild the index from the store.
+     */
+    public void addFingerprint(String deduplicationId, Instant pushDate, Instant now) {
+        long pushMillis = pushDate.toEpochMilli();
+        long bucketStart = pushMillis - Math.floorMod(pushMillis, bucketMillis);
+        if (!isExpired(bucketStart, now.toEpochMilli())) {
+            bucketsByStart.computeIfAbsent(bucketStart, start -> new FingerprintSet())
+                    .add(fingerprintFunction.applyAsLong(deduplicationId));
+        }
+    }
+
+    private void expire(Instant now) {
+        long nowMillis = now.toEpochMilli();
+        boolean expired = false;
+        Iterator<Long> bucketStarts = bucketsByStart.keySet().iterator();
+        while (bucketStarts.hasNext() && isExpired(bucketStarts.next(), nowMillis)) {
+            bucketStarts.remove();
+            expired = true;
+        }
+        if (expired) {
+            store.expire(Instant.ofEpochMilli(nowMillis - windowMillis - bucketMillis));
+        }
+    }
+
+    private boolean isExpired(long bucketStart, long nowMillis) {
+        return bucketStart + bucketMillis <= nowMillis - windowMillis;
+    }
+
+    /**
+     * @return non-zero 64-bit fingerprint, zero marks an empty slot of {@code FingerprintSet}.
+     */
+    private static long fingerprint(String deduplicationId) {
+        long fingerprint = FINGERPRINT_FUNCTION.hashString(deduplicationId, StandardCharsets.UTF_8).asLong();
+        return fingerprint != 0 ? fingerprint : 1;
+    }
+
+    /**
+     * Open-addressing hash set of non-zero fingerprints with linear probing.
+     */
+    static class FingerprintSet {
+
+        private long[] table = new long[16];
+        private int size;
+
+        boolean contains(long fingerprint) {
+            int mask = table.length - 1;
+            for (int i = (int) fingerprint & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == fingerprint) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(long fingerprint) {
+            if ((size + 1) * 2 > table.length) {
+                long[] oldTable = table;
+                table = new long[oldTable.length * 2];
+                for (long oldFingerprint : oldTable) {
+                    if (oldFingerprint != 0) {
+                        insert(oldFingerprint);
+                    }
+                }
+            }
+            if (insert(fingerprint)) {
+                size++;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return table.length;
+        }
+
+        private boolean insert(long fingerprint) {
+            int mask = table.length - 1;
+            int i = (int) fingerprint & mask;
+            for (; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == fingerprint) {
+                    return false;
+                }
+            }
+            table[i] = fingerprint;
+            return true;
+        }
+    }
+
+    /**
+     * Store that keeps exact entries in memory in push order, for services without other storage.
+     */
+    static class InMemoryStore implements Store {
+
+        private final Map<String, StoredMessage> messagesByDeduplicationId = new LinkedHashMap<>();
+
+        @Override
+        public void put(String deduplicationId, String messageId, Instant pushDate) {
+            messagesByDeduplicationId.remove(deduplicationId);
+            messagesByDeduplicationId.put(deduplicationId, new StoredMessage(messageId, pushDate.toEpochMilli()));
+        }
+
+        @Override
+        public String getMessageId(String deduplicationId, Instant bucketStart, Instant bucketEnd) {
+            StoredMessage storedMessage = messagesByDeduplicationId.get(deduplicationId);
+            return storedMessage != null
+                    && storedMessage.pushMillis >= bucketStart.toEpochMilli()
+                    && storedMessage.pushMillis < bucketEnd.toEpochMilli()
+                    ? storedMessage.messageId
+                    : null;
+        }
+
+        @Override
+        public void expire(Instant before) {
+            long beforeMillis = before.toEpochMilli();
+            Iterator<StoredMessage> storedMessages = messagesByDeduplicationId.values().iterator();
+            while (storedMessages.hasNext() && storedMessages.next().pushMillis < beforeMillis) {
+                storedMessages.remove();
+            }
+        }
+
+        private static class StoredMessage {
+            private final String messageId;
+            private final long pushMillis;
+
+            private StoredMessage(String messageId, long pushMillis) {
+                this.messageId = messageId;
+                this.pushMillis = pushMillis;
+            }
+        }
+    }
+}
@@ -9,37 +9,85 @@ import com.google.common.cache.CacheBuilder;
 import java.io.File;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 
 /**
  * This class is implementation of {@code QueueService}, based on storing state to a file.
  * Class has persistence state and it is suitable for same-host producers and consumers.
+ * <p>
+ * State of recently used queues is kept open in a bounded cache, idle queues are evicted in LRU order.
+ * Queue state is loaded lazily from disk on access and reloaded only if the file version
+ * was changed by another service, so the state stays shared between services.
+ * Deduplication IDs of the queue are appended to files by {@code DeduplicationFiles},
+ * so they survive restarts, while the open queue keeps only their fingerprints.
  */
 public class FileQueueService extends AbstractConcurrentCacheableQueueService {
 
+    public static final int DEFAULT_MAX_OPEN_QUEUES = 1000;
+
     private static final String QUEUE_DIR_NAME = "queue";
     private static final String CACHE_DIR_NAME = "cache";
+    private static final String DEDUPLICATION_DIR_NAME = "dedup";
 
     private final String storagePath;
+    private final Cache<String, OpenQueue> openQueues;
 
     public FileQueueService(Duration visibilityTimeout, String storagePath) {
-        super(visibilityTimeout);
+        this(visibilityTimeout, storagePath, DEFAULT_MAX_OPEN_QUEUES);
+    }
+
+    public FileQueueService(Duration visibilityTimeout, String storagePath, int maxOpenQueues) {
+        this(visibilityTimeout, storagePath, maxOpenQueues, DEFAULT_DEDUPLICATION_WINDOW);
+    }
+
+    public FileQueueService(Duration visibilityTimeout, String storagePath, int maxOpenQueues,
+                            Duration deduplicationWindow) {
+        super(visibilityTimeout, deduplicationWindow);
+        if (maxOpenQueues <= 0) {
+            throw new IllegalArgumentException("Invalid max open queues");
+        }
         this.storagePath = storagePath;
-        initializeStorage(storagePath);
+        this.openQueues = CacheBuilder.newBuilder().maximumSize(maxOpenQueues).build();
+        initializeStorage();
     }
 
     @Override
     protected BlockingDeque<Message> readQueue(String queueUrl) {
         File queueFile = getQueueFile(queueUrl);
-        return FileUtils.readData(queueFile);
+        OpenQueue openQueue = openQueues.getIfPresent(queueUrl);
+        long version = FileUtils.readVersion(queueFile);
+        if (openQueue == null || openQueue.messages == null
+                || version == FileUtils.NO_VERSION || version != openQueue.queueVersion) {
+            BlockingDeque<Message> messages = version == FileUtils.NO_VERSION
+                    ? FileUtils.readData(queueFile)
+                    : FileUtils.readVersionedData(queueFile);
+            if (messages == null) {
+                // queue does not exist, so it does not take a place in the open queues
+                if (openQueue != null) {
+                    openQueue.messages = null;
+                }
+                return null;
+            }
+            openQueue = openQueue(queueUrl);
+            openQueue.messages = messages;
+            openQueue.queueVersion = version;
+        }
+        return openQueue.messages;
     }
 
     @Override
     protected void writeQueue(String queueUrl, BlockingDeque<Message> messageQueue) {
         File queueFile = getQueueFile(queueUrl);
-        FileUtils.writeData(queueFile, messageQueue);
+        OpenQueue openQueue = openQueue(queueUrl);
+        openQueue.messages = messageQueue;
+        openQueue.queueVersion = FileUtils.writeVersionedData(queueFile, messageQueue);
     }
 
     @Override
@@ -50,7 +98,9 @@ public class FileQueueService extends AbstractConcurrentCacheableQueueService {
     @Override
     protected void writeCache(String queueUrl, Cache<String, PullMessageResult> messageCache) {
         File cacheFile = getCacheFile(queueUrl);
-        FileUtils.writeData(cacheFile, new ConcurrentHashMap<>(messageCache.asMap()));
+        OpenQueue openQueue = openQueue(queueUrl);
+        openQueue.hiddenMessages = messageCache;
+        openQueue.cacheVersion = FileUtils.writeVersionedData(cacheFile, new ConcurrentHashMap<>(messageCache.asMap()));
     }
 
     @Override
@@ -58,6 +108,44 @@ public class FileQueueService extends AbstractConcurrentCacheableQueueService {
         return CacheBuilder.newBuilder().build();
     }
 
+    @Override
+    protected void removeQueue(String queueUrl) {
+        openQueues.invalidate(queueUrl);
+        getQueueFile(queueUrl).delete();
+        getCacheFile(queueUrl).delete();
+        FileUtils.deleteDirectory(getDeduplicationDir(queueUrl));
+    }
+
+    @Override
+    protected List<String> readQueueUrls() {
+        String[] queueUrls = new File(storagePath + File.separator + QUEUE_DIR_NAME).list();
+        return queueUrls != null ? new ArrayList<>(Arrays.asList(queueUrls)) : Collections.emptyList();
+    }
+
+    /**
+     * Builds the index of the open queue lazily from deduplication files
+     * and adds fingerprints of records appended since the previous access.
+     */
+    @Override
+    protected DeduplicationIndex readDeduplicationIndex(String queueUrl) {
+        OpenQueue openQueue = openQueue(queueUrl);
+        if (openQueue.deduplicationIndex == null) {
+            openQueue.deduplicationFiles = new DeduplicationFiles(getDeduplicationDir(queueUrl), deduplicationWindow);
+            openQueue.deduplicationIndex = new DeduplicationIndex(deduplicationWindow, openQueue.deduplicationFiles);
+        }
+        openQueue.deduplicationFiles.readNewRecords(openQueue.deduplicationIndex, Instant.now());
+        return openQueue.deduplicationIndex;
+    }
+
+    /**
+     * Returns the open state of the queue, adding it to the open queues.
+     * It is used only when the queue files exist or are being written,
+     * so reads of unknown queues do not evict active ones.
+     */
+    private OpenQueue openQueue(String queueUrl) {
+        return openQueues.asMap().computeIfAbsent(queueUrl, url -> new OpenQueue());
+    }
+
     private File getQueueFile(String queueUrl) {
         return new File(storagePath + File.separator + QUEUE_DIR_NAME + File.separator + queueUrl);
     }
@@ -66,56 +154,77 @@ public class FileQueueService extends AbstractConcurrentCacheableQueueService {
         return new File(storagePath + File.separator + CACHE_DIR_NAME + File.separator + queueUrl);
     }
 
-    private void initializeStorage(String storagePath) {
-        File storageDir = new File(storagePath);
-        if (!storageDir.exists() || !storageDir.isDirectory()) {
-            createStorageDirectories(storageDir);
-        } else if (storageDir.exists() && storageDir.isDirectory()) {
-            restoreAllHiddenMessages();
-        }
+    private File getDeduplicationDir(String queueUrl) {
+        return new File(storagePath + File.separator + DEDUPLICATION_DIR_NAME + File.separator + queueUrl);
     }
 
-    private void createStorageDirectories(File mainStorageDir) {
-        mainStorageDir.mkdir();
+    private void initializeStorage() {
         File queueDir = new File(storagePath + File.separator + QUEUE_DIR_NAME);
         File cacheDir = new File(storagePath + File.separator + CACHE_DIR_NAME);
-        queueDir.mkdir();
-        cacheDir.mkdir();
-    }
-
-    private void restoreAllHiddenMessages() {
-        File cacheDir = new File(storagePath + File.separator + CACHE_DIR_NAME);
-        if (cacheDir.exists() && cacheDir.isDirectory()) {
-            String[] queueUrls = cacheDir.list();
-            if (queueUrls != null) {
-                for (String queueUrl : queueUrls) {
-                    restoreCache(queueUrl);
-                }
-            }
-        }
+        File deduplicationDir = new File(storagePath + File.separator + DEDUPLICATION_DIR_NAME);
+        queueDir.mkdirs();
+        cacheDir.mkdirs();
+        deduplicationDir.mkdirs();
     }
 
+    /**
+     * Reads hidden messages of the queue and restores the expired ones back to the queue.
+     */
     private Cache<String, PullMessageResult> restoreCache(String queueUrl) {
         File cacheFile = getCacheFile(queueUrl);
-        ConcurrentMap<String, PullMessageResult> cacheData = FileUtils.readData(cacheFile);
-        if (cacheData != null) {
-            cacheData.values()
-                    .parallelStream()
-                    .filter(this::isInvisibleTimeExpired)
-                    .forEach(pullResult -> {
-                        restoreMessage(pullResult.getMessage(), queueUrl);
-                        cacheData.remove(pullResult.getReceiptHandle());
-                    });
+        OpenQueue openQueue = openQueues.getIfPresent(queueUrl);
+        long version = FileUtils.readVersion(cacheFile);
+        if (openQueue == null || openQueue.hiddenMessages == null
+                || version == FileUtils.NO_VERSION || version != openQueue.cacheVersion) {
+            ConcurrentMap<String, PullMessageResult> cacheData = version == FileUtils.NO_VERSION
+                    ? FileUtils.readData(cacheFile)
+                    : FileUtils.readVersionedData(cacheFile);
+            if (cacheData == null) {
+                if (openQueue != null) {
+                    openQueue.hiddenMessages = null;
+                }
+                return null;
+            }
             Cache<String, PullMessageResult> hiddenMessageCache = buildCache(queueUrl);
             hiddenMessageCache.putAll(cacheData);
+            openQueue = openQueue(queueUrl);
+            openQueue.hiddenMessages = hiddenMessageCache;
+            openQueue.cacheVersion = version;
+        }
+
+        Cache<String, PullMessageResult> hiddenMessageCache = openQueue.hiddenMessages;
+        List<PullMessageResult> expiredResults = hiddenMessageCache.asMap().values()
+                .stream()
+                .filter(this::isInvisibleTimeExpired)
+                .collect(Collectors.toList());
+        if (!expiredResults.isEmpty()) {
+            expiredResults.forEach(pullResult -> {
+                restoreMessage(pullResult.getMessage(), queueUrl);
+                hiddenMessageCache.invalidate(pullResult.getReceiptHandle());
+            });
             writeCache(queueUrl, hiddenMessageCache);
-            return hiddenMessageCache;
         }
-        return null;
+        return hiddenMessageCache;
     }
 
     private boolean isInvisibleTimeExpired(PullMessageResult pullMessageResult) {
-        Instant invisibleExpirationDate = pullMessageResult.getReceiptDate().plus(visibilityTimeout);
-        return Instant.now().isAfter(invisibleExpirationDate);
+        Instant invisibleExpirationDate = pullMessageResult.getVisibilityDeadline();
+        if (invisibleExpirationDate == null) {
+            invisibleExpirationDate = pullMessageResult.getReceiptDate().plus(visibilityTimeout);
+        }
+        return !Instant.now().isBefore(invisibleExpirationDate);
+    }
+
+    /**
+     * Open state of the queue with versions of the files it was read from or written to,
+     * and the fingerprint index of its deduplication files.
+     */
+    private static class OpenQueue {
+        private long queueVersion = FileUtils.NO_VERSION;
+        private BlockingDeque<Message> messages;
+        private long cacheVersion = FileUtils.NO_VERSION;
+        private Cache<String, PullMessageResult> hiddenMessages;
+        private DeduplicationFiles deduplicationFiles;
+        private DeduplicationIndex deduplicationIndex;
     }
 }
@@ -3,14 +3,13 @@ package com.example.service.impl;
 import com.example.model.Message;
 import com.example.model.PullMessageResult;
 import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalCause;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.TimeUnit;
 
 /**
  * This class is implementation of {@code QueueService}, based on storing state to a {@code ConcurrentHashMap}.
@@ -20,11 +19,16 @@ public class InMemoryQueueService extends AbstractConcurrentCacheableQueueServic
 
     private final ConcurrentMap<String, BlockingDeque<Message>> messagesByQueueUrl = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Cache<String, PullMessageResult>> hiddenMessagesByQueueUrl = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DeduplicationIndex> deduplicationIndexesByQueueUrl = new ConcurrentHashMap<>();
 
     public InMemoryQueueService(Duration visibilityTimeout) {
         super(visibilityTimeout);
     }
 
+    public InMemoryQueueService(Duration visibilityTimeout, Duration deduplicationWindow) {
+        super(visibilityTimeout, deduplicationWindow);
+    }
+
     @Override
     protected BlockingDeque<Message> readQueue(String queueUrl) {
         return messagesByQueueUrl.get(queueUrl);
@@ -50,20 +54,29 @@ public class InMemoryQueueService extends AbstractConcurrentCacheableQueueServic
     }
 
     /**
-     * Builds cache for hidden messages with specified visibility timeout
+     * Builds cache for hidden messages that expire at their own visibility deadlines
      * and listener that restore message after visibility timeout expiration.
      */
     @Override
     protected Cache<String, PullMessageResult> buildCache(String queueUrl) {
-        return CacheBuilder.newBuilder()
-                .expireAfterWrite(visibilityTimeout.toNanos(), TimeUnit.NANOSECONDS)
-                .removalListener(notification -> {
-                    if (notification.getCause().equals(RemovalCause.EXPIRED)) {
-                        PullMessageResult pullResult = (PullMessageResult) notification.getValue();
-                        if (pullResult != null) {
-                            restoreMessage(pullResult.getMessage(), queueUrl);
-                        }
-                    }
-                }).build();
+        return new VisibilityTimeoutCache(pullResult -> restoreMessage(pullResult.getMessage(), queueUrl));
+    }
+
+    @Override
+    protected void removeQueue(String queueUrl) {
+        messagesByQueueUrl.remove(queueUrl);
+        hiddenMessagesByQueueUrl.remove(queueUrl);
+        deduplicationIndexesByQueueUrl.remove(queueUrl);
+    }
+
+    @Override
+    protected List<String> readQueueUrls() {
+        return new ArrayList<>(messagesByQueueUrl.keySet());
+    }
+
+    @Override
+    protected DeduplicationIndex readDeduplicationIndex(String queueUrl) {
+        return deduplicationIndexesByQueueUrl.computeIfAbsent(queueUrl,
+                url -> new DeduplicationIndex(deduplicationWindow));
     }
-}
\ No newline at end of file
+}
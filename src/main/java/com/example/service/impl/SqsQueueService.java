@@ -1,6 +1,15 @@
 package com.example.service.impl;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.MessageNotInflightException;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+import com.amazonaws.services.sqs.model.ReceiptHandleIsInvalidException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.example.model.Message;
@@ -8,17 +17,103 @@ import com.example.model.PullMessageResult;
 import com.example.model.PushMessageResult;
 import com.example.service.QueueService;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 
 /**
  * This class is implementation of {@code QueueService}, it is an adapter for a AmazonSQS.
+ * <p>
+ * The used version of SQS client does not support message deduplication IDs,
+ * so duplicates are detected by this adapter within the deduplication window
+ * and only for messages pushed through the same adapter instance.
+ * The ID is reserved before the message is sent, so concurrent pushes with the same ID
+ * wait for the first one, and it is recorded only after SQS confirms the send.
+ * Retries after a failed or timed out send are not covered: SQS may have accepted
+ * the first message, but the ID was not recorded, so the retry pushes a duplicate.
  */
 public class SqsQueueService implements QueueService {
 
+    /**
+     * Maximum visibility timeout accepted by SQS, 12 hours.
+     */
+    private static final int MAX_VISIBILITY_TIMEOUT_SECONDS = 43200;
+    /**
+     * Error code returned by SQS for a stale or expired receipt handle.
+     */
+    private static final String INVALID_PARAMETER_VALUE_ERROR_CODE = "InvalidParameterValue";
+    private static final int PURGE_BATCH_SIZE = 10;
+    /**
+     * Long polling queries all SQS servers, so an empty response means that the queue is empty.
+     */
+    private static final int PURGE_WAIT_SECONDS = 1;
+
     private final AmazonSQSClient sqsClient;
+    private final Duration deduplicationWindow;
+    private final ConcurrentMap<String, QueueDeduplication> deduplicationsByQueueUrl = new ConcurrentHashMap<>();
 
     public SqsQueueService(AmazonSQSClient sqsClient) {
+        this(sqsClient, AbstractConcurrentCacheableQueueService.DEFAULT_DEDUPLICATION_WINDOW);
+    }
+
+    public SqsQueueService(AmazonSQSClient sqsClient, Duration deduplicationWindow) {
+        if (deduplicationWindow.isNegative() || deduplicationWindow.isZero()) {
+            throw new IllegalArgumentException("Invalid deduplication window");
+        }
         this.sqsClient = sqsClient;
+        this.deduplicationWindow = deduplicationWindow;
+    }
+
+    @Override
+    public String createQueue(String queueName) {
+        return sqsClient.createQueue(queueName).getQueueUrl();
+    }
+
+    @Override
+    public void deleteQueue(String queueUrl) {
+        sqsClient.deleteQueue(queueUrl);
+        deduplicationsByQueueUrl.remove(queueUrl);
+    }
+
+    /**
+     * PurgeQueue operation is not available in the used version of SQS client,
+     * so visible messages are received and deleted in batches.
+     * The purge stops when the queue is empty or when the number of messages that were in the queue
+     * at the start is deleted, so it ends even if producers keep pushing.
+     * Messages that are in flight at that moment are invisible and stay in the queue.
+     *
+     * @throws AmazonClientException if some messages could not be deleted.
+     */
+    @Override
+    public void purgeQueue(String queueUrl) {
+        int messageCount = readApproximateNumberOfMessages(queueUrl);
+        ReceiveMessageRequest request = new ReceiveMessageRequest(queueUrl)
+                .withMaxNumberOfMessages(PURGE_BATCH_SIZE)
+                .withWaitTimeSeconds(PURGE_WAIT_SECONDS);
+        int deletedCount = 0;
+        List<com.amazonaws.services.sqs.model.Message> messages;
+        while (deletedCount < messageCount && !(messages = sqsClient.receiveMessage(request).getMessages()).isEmpty()) {
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                entries.add(new DeleteMessageBatchRequestEntry(String.valueOf(i), messages.get(i).getReceiptHandle()));
+            }
+            deleteMessageBatch(queueUrl, entries);
+            deletedCount += entries.size();
+        }
+    }
+
+    @Override
+    public List<String> listQueues() {
+        return sqsClient.listQueues().getQueueUrls();
     }
 
     @Override
@@ -27,21 +122,169 @@ public class SqsQueueService implements QueueService {
         return new PushMessageResult(result.getMessageId());
     }
 
+    @Override
+    public PushMessageResult push(String queueUrl, String messageBody, String deduplicationId) {
+        if (deduplicationId == null) {
+            return push(queueUrl, messageBody);
+        }
+        DeduplicationIndex.checkDeduplicationId(deduplicationId);
+        QueueDeduplication deduplication = deduplicationsByQueueUrl
+                .computeIfAbsent(queueUrl, url -> new QueueDeduplication(deduplicationWindow));
+        CompletableFuture<PushMessageResult> reservedPush = new CompletableFuture<>();
+        CompletableFuture<PushMessageResult> pendingPush;
+        synchronized (deduplication) {
+            String pushedMessageId = deduplication.index.getMessageId(deduplicationId, Instant.now());
+            if (pushedMessageId != null) {
+                return new PushMessageResult(pushedMessageId);
+            }
+            pendingPush = deduplication.pendingPushes.putIfAbsent(deduplicationId, reservedPush);
+        }
+        if (pendingPush != null) {
+            return awaitPush(pendingPush);
+        }
+
+        // the monitor is not held while the message is sent
+        PushMessageResult pushResult;
+        try {
+            pushResult = push(queueUrl, messageBody);
+        } catch (RuntimeException e) {
+            synchronized (deduplication) {
+                deduplication.pendingPushes.remove(deduplicationId);
+            }
+            reservedPush.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (deduplication) {
+            deduplication.index.put(deduplicationId, pushResult.getMessageId(), Instant.now());
+            deduplication.pendingPushes.remove(deduplicationId);
+        }
+        reservedPush.complete(pushResult);
+        return pushResult;
+    }
+
     @Override
     public PullMessageResult pull(String queueUrl) {
         ReceiveMessageResult result = sqsClient.receiveMessage(queueUrl);
+        return toPullResult(result, Instant.now(), null);
+    }
+
+    /**
+     * Receives a message with the visibility timeout that overrides the queue's default one.
+     * SQS accepts the timeout in whole seconds up to 12 hours, so it is rounded up.
+     */
+    @Override
+    public PullMessageResult pull(String queueUrl, Duration visibilityTimeout) {
+        if (visibilityTimeout.isNegative() || visibilityTimeout.isZero()) {
+            throw new IllegalArgumentException("Invalid visibility timeout");
+        }
+        int visibilityTimeoutSeconds = toSeconds(visibilityTimeout);
+        ReceiveMessageRequest request = new ReceiveMessageRequest(queueUrl)
+                .withMaxNumberOfMessages(1)
+                .withVisibilityTimeout(visibilityTimeoutSeconds);
+        ReceiveMessageResult result = sqsClient.receiveMessage(request);
         Instant receiptDate = Instant.now();
+        return toPullResult(result, receiptDate, receiptDate.plusSeconds(visibilityTimeoutSeconds));
+    }
+
+    @Override
+    public void delete(String queueUrl, String receiptHandle) {
+        sqsClient.deleteMessage(queueUrl, receiptHandle);
+    }
+
+    /**
+     * Maps to SQS ChangeMessageVisibility operation.
+     * SQS accepts the timeout in whole seconds up to 12 hours, so it is rounded up.
+     * SQS reports a stale or expired receipt handle as an invalid parameter value.
+     */
+    @Override
+    public boolean changeVisibility(String queueUrl, String receiptHandle, Duration visibilityTimeout) {
+        try {
+            sqsClient.changeMessageVisibility(queueUrl, receiptHandle, toSeconds(visibilityTimeout));
+            return true;
+        } catch (ReceiptHandleIsInvalidException | MessageNotInflightException e) {
+            return false;
+        } catch (AmazonServiceException e) {
+            if (INVALID_PARAMETER_VALUE_ERROR_CODE.equals(e.getErrorCode())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private PullMessageResult toPullResult(ReceiveMessageResult result, Instant receiptDate, Instant visibilityDeadline) {
         return result.getMessages().stream()
                 .map(message -> {
                     Message messageModel = new Message(message.getBody(), message.getMessageId());
-                    return new PullMessageResult(messageModel, message.getReceiptHandle(), receiptDate);
+                    return new PullMessageResult(messageModel, message.getReceiptHandle(), receiptDate, visibilityDeadline);
                 })
                 .findFirst()
                 .orElse(null);
     }
 
-    @Override
-    public void delete(String queueUrl, String receiptHandle) {
-        sqsClient.deleteMessage(queueUrl, receiptHandle);
+    private int readApproximateNumberOfMessages(String queueUrl) {
+        String attributeName = QueueAttributeName.ApproximateNumberOfMessages.toString();
+        String messageCount = sqsClient.getQueueAttributes(queueUrl, Collections.singletonList(attributeName))
+                .getAttributes()
+                .get(attributeName);
+        return messageCount != null ? Integer.parseInt(messageCount) : 0;
+    }
+
+    /**
+     * Deletes the batch and retries entries that failed on the SQS side once.
+     */
+    private void deleteMessageBatch(String queueUrl, List<DeleteMessageBatchRequestEntry> entries) {
+        List<BatchResultErrorEntry> failedEntries = sqsClient.deleteMessageBatch(queueUrl, entries).getFailed();
+        List<String> retriedIds = failedEntries.stream()
+                .filter(failedEntry -> !Boolean.TRUE.equals(failedEntry.getSenderFault()))
+                .map(BatchResultErrorEntry::getId)
+                .collect(Collectors.toList());
+        if (!retriedIds.isEmpty()) {
+            List<DeleteMessageBatchRequestEntry> retriedEntries = entries.stream()
+                    .filter(entry -> retriedIds.contains(entry.getId()))
+                    .collect(Collectors.toList());
+            DeleteMessageBatchResult retryResult = sqsClient.deleteMessageBatch(queueUrl, retriedEntries);
+            failedEntries = new ArrayList<>(failedEntries);
+            failedEntries.removeIf(failedEntry -> retriedIds.contains(failedEntry.getId()));
+            failedEntries.addAll(retryResult.getFailed());
+        }
+        if (!failedEntries.isEmpty()) {
+            BatchResultErrorEntry failedEntry = failedEntries.get(0);
+            throw new AmazonClientException("Failed to delete " + failedEntries.size() + " messages of " + queueUrl
+                    + ": " + failedEntry.getCode() + " " + failedEntry.getMessage());
+        }
+    }
+
+    /**
+     * Waits for the concurrent push with the same deduplication ID and rethrows its failure.
+     */
+    private static PushMessageResult awaitPush(CompletableFuture<PushMessageResult> pendingPush) {
+        try {
+            return pendingPush.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private static int toSeconds(Duration visibilityTimeout) {
+        if (visibilityTimeout.isNegative()) {
+            throw new IllegalArgumentException("Invalid visibility timeout");
+        }
+        long seconds = visibilityTimeout.getSeconds() + (visibilityTimeout.getNano() > 0 ? 1 : 0);
+        if (seconds > MAX_VISIBILITY_TIMEOUT_SECONDS) {
+            throw new IllegalArgumentException("Visibility timeout exceeds 12 hours");
+        }
+        return (int) seconds;
+    }
+
+    /**
+     * Deduplication state of the queue, guarded by its own monitor.
+     */
+    private static class QueueDeduplication {
+        private final DeduplicationIndex index;
+        private final Map<String, CompletableFuture<PushMessageResult>> pendingPushes = new HashMap<>();
+
+        private QueueDeduplication(Duration deduplicationWindow) {
+            this.index = new DeduplicationIndex(deduplicationWindow);
+        }
     }
 }
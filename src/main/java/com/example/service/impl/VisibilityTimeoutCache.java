@@ -0,0 +1,97 @@
+package com.example.service.impl;
+
+import com.example.model.PullMessageResult;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.ForwardingCache;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * This class is a {@code Cache} of hidden messages by receipt handle, where every message
+ * expires at its own visibility deadline instead of a single timeout for the whole cache.
+ * <p>
+ * Deadlines are indexed in a sorted set, so hiding or rescheduling a message costs O(log n)
+ * and {@link #cleanUp()} evicts only expired messages from the head of the index.
+ * Entries must be modified through {@code put} and {@code invalidate} methods,
+ * the {@link #asMap()} view is intended for reading only.
+ */
+class VisibilityTimeoutCache extends ForwardingCache.SimpleForwardingCache<String, PullMessageResult> {
+
+    private static final Comparator<PullMessageResult> DEADLINE_ORDER =
+            Comparator.comparing(PullMessageResult::getVisibilityDeadline)
+                    .thenComparing(PullMessageResult::getReceiptHandle);
+
+    private final NavigableSet<PullMessageResult> deadlines = new ConcurrentSkipListSet<>(DEADLINE_ORDER);
+    private final Consumer<PullMessageResult> expirationListener;
+
+    /**
+     * @param expirationListener is called for every message which visibility deadline has expired.
+     */
+    VisibilityTimeoutCache(Consumer<PullMessageResult> expirationListener) {
+        super(CacheBuilder.newBuilder().build());
+        this.expirationListener = expirationListener;
+    }
+
+    @Override
+    public void put(String receiptHandle, PullMessageResult pullResult) {
+        Preconditions.checkNotNull(pullResult.getVisibilityDeadline(), "Visibility deadline is required");
+        unschedule(receiptHandle);
+        super.put(receiptHandle, pullResult);
+        deadlines.add(pullResult);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends PullMessageResult> pullResults) {
+        pullResults.forEach(this::put);
+    }
+
+    @Override
+    public void invalidate(Object receiptHandle) {
+        unschedule(receiptHandle);
+        super.invalidate(receiptHandle);
+    }
+
+    @Override
+    public void invalidateAll(Iterable<?> receiptHandles) {
+        receiptHandles.forEach(this::invalidate);
+    }
+
+    @Override
+    public void invalidateAll() {
+        deadlines.clear();
+        super.invalidateAll();
+    }
+
+    /**
+     * Evicts all messages with expired visibility deadline and notifies the expiration listener.
+     */
+    @Override
+    public void cleanUp() {
+        Instant now = Instant.now();
+        Iterator<PullMessageResult> iterator = deadlines.iterator();
+        while (iterator.hasNext()) {
+            PullMessageResult pullResult = iterator.next();
+            if (pullResult.getVisibilityDeadline().isAfter(now)) {
+                break;
+            }
+            iterator.remove();
+            super.invalidate(pullResult.getReceiptHandle());
+            expirationListener.accept(pullResult);
+        }
+        super.cleanUp();
+    }
+
+    private void unschedule(Object receiptHandle) {
+        PullMessageResult previous = getIfPresent(receiptHandle);
+        if (previous != null) {
+            deadlines.remove(previous);
+        }
+    }
+}
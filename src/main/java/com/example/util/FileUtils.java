@@ -4,9 +4,17 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class FileUtils {
 
+    /**
+     * Version of a file that was written without version header or does not exist.
+     */
+    public static final long NO_VERSION = 0L;
+
+    private static final int VERSION_HEADER_MAGIC = 0x4D515631;
+
     @SuppressWarnings("unchecked")
     public static <T> T readData(File file) {
         try (ObjectInputStream objectInput = new ObjectInputStream(new FileInputStream(file))) {
@@ -25,6 +33,52 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Reads only the version header of the file written by {@link #writeVersionedData},
+     * so the caller can check if its copy of the data is up to date without deserializing it.
+     *
+     * @return version of the file or {@link #NO_VERSION} if the file does not exist or has no version header.
+     */
+    public static long readVersion(File file) {
+        try (DataInputStream dataInput = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 12))) {
+            return dataInput.readInt() == VERSION_HEADER_MAGIC ? dataInput.readLong() : NO_VERSION;
+        } catch (IOException e) {
+            return NO_VERSION;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T readVersionedData(File file) {
+        try (DataInputStream dataInput = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (dataInput.readInt() != VERSION_HEADER_MAGIC) {
+                return null;
+            }
+            dataInput.readLong();
+            return (T) new ObjectInputStream(dataInput).readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the data with a newly generated version header.
+     *
+     * @return new version of the file or {@link #NO_VERSION} if writing failed.
+     */
+    public static <T> long writeVersionedData(File file, T data) {
+        long version = nextVersion();
+        try (DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            dataOutput.writeInt(VERSION_HEADER_MAGIC);
+            dataOutput.writeLong(version);
+            ObjectOutputStream objectOutput = new ObjectOutputStream(dataOutput);
+            objectOutput.writeObject(data);
+            objectOutput.flush();
+            return version;
+        } catch (IOException e) {
+            return NO_VERSION;
+        }
+    }
+
     public static boolean deleteDirectory(File directory) {
         try {
             Files.walk(directory.toPath())
@@ -36,4 +90,12 @@ public class FileUtils {
             return false;
         }
     }
+
+    private static long nextVersion() {
+        long version;
+        do {
+            version = ThreadLocalRandom.current().nextLong();
+        } while (version == NO_VERSION);
+        return version;
+    }
 }
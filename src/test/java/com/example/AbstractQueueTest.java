@@ -6,6 +6,8 @@ import com.example.service.QueueService;
 import org.junit.Test;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -13,6 +15,8 @@ public abstract class AbstractQueueTest {
 
     protected abstract QueueService initQueueService(Duration visibilityTimeout);
 
+    protected abstract QueueService initQueueService(Duration visibilityTimeout, Duration deduplicationWindow);
+
     @Test
     public void assertPushAndPullMessageInQueue() {
         QueueService queueService = initQueueService(Duration.ofMillis(3000));
@@ -106,4 +110,156 @@ public abstract class AbstractQueueTest {
         assertEquals(messageBody, secondPull.getMessage().getBody());
         assertEquals(firstPull.getMessage(), secondPull.getMessage());
     }
+
+    @Test
+    public void assertPullVisibilityTimeoutOverridesDefault() throws InterruptedException {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000));
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "message");
+        PullMessageResult firstPull = queueService.pull(queueUrl, Duration.ofMillis(1));
+        Thread.sleep(100);
+        PullMessageResult secondPull = queueService.pull(queueUrl);
+
+        assertNotNull(secondPull);
+        assertEquals(firstPull.getMessage(), secondPull.getMessage());
+    }
+
+    @Test
+    public void assertMessageStaysInvisibleAfterVisibilityExtension() throws InterruptedException {
+        QueueService queueService = initQueueService(Duration.ofMillis(100));
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "message");
+        PullMessageResult pullResult = queueService.pull(queueUrl);
+        boolean changed = queueService.changeVisibility(queueUrl, pullResult.getReceiptHandle(), Duration.ofMillis(3000));
+        Thread.sleep(200);
+
+        assertTrue(changed);
+        assertNull(queueService.pull(queueUrl));
+    }
+
+    @Test
+    public void assertMessageBecomeVisibleAfterZeroVisibilityChange() {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000));
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "message");
+        PullMessageResult firstPull = queueService.pull(queueUrl);
+        boolean changed = queueService.changeVisibility(queueUrl, firstPull.getReceiptHandle(), Duration.ZERO);
+        PullMessageResult secondPull = queueService.pull(queueUrl);
+
+        assertTrue(changed);
+        assertNotNull(secondPull);
+        assertEquals(firstPull.getMessage(), secondPull.getMessage());
+    }
+
+    @Test
+    public void assertUnsuccessfulVisibilityChangeAfterInvisibleTimeoutExpired() throws InterruptedException {
+        QueueService queueService = initQueueService(Duration.ofMillis(1));
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "message");
+        PullMessageResult pullResult = queueService.pull(queueUrl);
+        Thread.sleep(100);
+
+        assertFalse(queueService.changeVisibility(queueUrl, pullResult.getReceiptHandle(), Duration.ofMillis(3000)));
+        assertNotNull(queueService.pull(queueUrl));
+    }
+
+    @Test
+    public void assertCreatedQueuesAreListed() {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000));
+
+        String firstQueueUrl = queueService.createQueue("first-queue");
+        String secondQueueUrl = queueService.createQueue("second-queue");
+        queueService.push("third-queue", "message");
+
+        List<String> queueUrls = queueService.listQueues();
+
+        assertEquals(3, queueUrls.size());
+        assertTrue(queueUrls.containsAll(Arrays.asList(firstQueueUrl, secondQueueUrl, "third-queue")));
+    }
+
+    @Test
+    public void assertCreateQueueKeepsExistingMessages() {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000));
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "message");
+        queueService.createQueue(queueUrl);
+
+        assertNotNull(queueService.pull(queueUrl));
+    }
+
+    @Test
+    public void assertDeletedQueueHasNoMessages() {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000));
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "message");
+        queueService.deleteQueue(queueUrl);
+
+        assertNull(queueService.pull(queueUrl));
+        assertFalse(queueService.listQueues().contains(queueUrl));
+    }
+
+    @Test
+    public void assertPurgedQueueHasNoVisibleAndHiddenMessages() throws InterruptedException {
+        QueueService queueService = initQueueService(Duration.ofMillis(1));
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "first");
+        queueService.push(queueUrl, "second");
+        queueService.pull(queueUrl);
+        queueService.purgeQueue(queueUrl);
+        Thread.sleep(100);
+
+        assertNull(queueService.pull(queueUrl));
+        assertTrue(queueService.listQueues().contains(queueUrl));
+    }
+
+    @Test
+    public void assertDuplicateMessageIsNotPushedAgain() {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000));
+        String queueUrl = "test-queue-url";
+
+        PushMessageResult firstPush = queueService.push(queueUrl, "message", "deduplication-id");
+        PushMessageResult secondPush = queueService.push(queueUrl, "message", "deduplication-id");
+        PullMessageResult firstPull = queueService.pull(queueUrl);
+        PullMessageResult secondPull = queueService.pull(queueUrl);
+
+        assertEquals(firstPush.getMessageId(), secondPush.getMessageId());
+        assertNotNull(firstPull);
+        assertNull(secondPull);
+    }
+
+    @Test
+    public void assertMessagesWithDifferentDeduplicationIdsArePushed() {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000));
+        String queueUrl = "test-queue-url";
+
+        PushMessageResult firstPush = queueService.push(queueUrl, "message", "first-id");
+        PushMessageResult secondPush = queueService.push(queueUrl, "message", "second-id");
+        PushMessageResult thirdPush = queueService.push(queueUrl, "message");
+
+        assertNotEquals(firstPush.getMessageId(), secondPush.getMessageId());
+        assertNotNull(queueService.pull(queueUrl));
+        assertNotNull(queueService.pull(queueUrl));
+        assertEquals(thirdPush.getMessageId(), queueService.pull(queueUrl).getMessage().getMessageId());
+    }
+
+    @Test
+    public void assertDuplicateMessageIsPushedAfterDeduplicationWindow() throws InterruptedException {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000), Duration.ofMillis(50));
+        String queueUrl = "test-queue-url";
+
+        PushMessageResult firstPush = queueService.push(queueUrl, "message", "deduplication-id");
+        Thread.sleep(200);
+        PushMessageResult secondPush = queueService.push(queueUrl, "message", "deduplication-id");
+
+        assertNotEquals(firstPush.getMessageId(), secondPush.getMessageId());
+        assertNotNull(queueService.pull(queueUrl));
+        assertNotNull(queueService.pull(queueUrl));
+    }
 }
@@ -1,6 +1,7 @@
 package com.example;
 
 import com.example.model.PullMessageResult;
+import com.example.model.PushMessageResult;
 import com.example.service.QueueService;
 import com.example.service.impl.FileQueueService;
 import com.example.util.FileUtils;
@@ -21,6 +22,12 @@ public class FileQueueTest extends AbstractQueueTest {
         return new FileQueueService(visibilityTimeout, STORAGE_DIR);
     }
 
+    @Override
+    protected QueueService initQueueService(Duration visibilityTimeout, Duration deduplicationWindow) {
+        return new FileQueueService(visibilityTimeout, STORAGE_DIR, FileQueueService.DEFAULT_MAX_OPEN_QUEUES,
+                deduplicationWindow);
+    }
+
     @After
     public void deleteTestDir() {
         File directory = new File(STORAGE_DIR);
@@ -61,4 +68,55 @@ public class FileQueueTest extends AbstractQueueTest {
         assertNotNull(pullResult);
         assertEquals(message, pullResult.getMessage().getBody());
     }
+
+    @Test
+    public void assertEvictedQueueIsLoadedFromDisk() {
+        QueueService queueService = new FileQueueService(Duration.ofMillis(3000), STORAGE_DIR, 1);
+        String firstQueueUrl = "first-queue-url";
+        String secondQueueUrl = "second-queue-url";
+
+        queueService.push(firstQueueUrl, "first");
+        queueService.push(secondQueueUrl, "second");
+        PullMessageResult firstPull = queueService.pull(firstQueueUrl);
+        PullMessageResult secondPull = queueService.pull(secondQueueUrl);
+
+        assertNotNull(firstPull);
+        assertNotNull(secondPull);
+        assertEquals("first", firstPull.getMessage().getBody());
+        assertEquals("second", secondPull.getMessage().getBody());
+        assertNull(queueService.pull(firstQueueUrl));
+    }
+
+    @Test
+    public void assertServiceDeduplicatesMessagesAfterRestart() {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000));
+        String queueUrl = "test-queue-url";
+
+        PushMessageResult firstPush = queueService.push(queueUrl, "message", "deduplication-id");
+
+        // simulates service restart and initializes it again
+        QueueService restoredQueueService = initQueueService(Duration.ofMillis(3000));
+        PushMessageResult secondPush = restoredQueueService.push(queueUrl, "message", "deduplication-id");
+
+        assertEquals(firstPush.getMessageId(), secondPush.getMessageId());
+        assertNotNull(restoredQueueService.pull(queueUrl));
+        assertNull(restoredQueueService.pull(queueUrl));
+    }
+
+    @Test
+    public void assertRestartedServiceAppliesItsOwnDeduplicationWindow() throws InterruptedException {
+        QueueService queueService = initQueueService(Duration.ofMillis(3000), Duration.ofHours(1));
+        String queueUrl = "test-queue-url";
+
+        PushMessageResult firstPush = queueService.push(queueUrl, "message", "deduplication-id");
+
+        // simulates service restart with a shorter window and initializes it again
+        QueueService restoredQueueService = initQueueService(Duration.ofMillis(3000), Duration.ofMillis(50));
+        Thread.sleep(200);
+        PushMessageResult secondPush = restoredQueueService.push(queueUrl, "message", "deduplication-id");
+
+        assertNotEquals(firstPush.getMessageId(), secondPush.getMessageId());
+        assertNotNull(restoredQueueService.pull(queueUrl));
+        assertNotNull(restoredQueueService.pull(queueUrl));
+    }
 }
@@ -10,4 +10,8 @@ public class InMemoryQueueTest extends AbstractQueueTest {
     public QueueService initQueueService(Duration visibilityTimeout) {
         return new InMemoryQueueService(visibilityTimeout);
     }
+
+    public QueueService initQueueService(Duration visibilityTimeout, Duration deduplicationWindow) {
+        return new InMemoryQueueService(visibilityTimeout, deduplicationWindow);
+    }
 }
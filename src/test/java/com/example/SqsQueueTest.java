@@ -0,0 +1,132 @@
+package com.example;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.example.load.StubSqsClient;
+import com.example.model.PullMessageResult;
+import com.example.model.PushMessageResult;
+import com.example.service.QueueService;
+import com.example.service.impl.SqsQueueService;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class SqsQueueTest {
+
+    private final QueueService queueService =
+            new SqsQueueService(new StubSqsClient(Duration.ofSeconds(30), Duration.ZERO));
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertServiceRejectsZeroDeduplicationWindow() {
+        new SqsQueueService(new StubSqsClient(Duration.ofSeconds(30), Duration.ZERO), Duration.ZERO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertPullRejectsZeroVisibilityTimeout() {
+        queueService.pull("test-queue-url", Duration.ZERO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertPullRejectsVisibilityTimeoutOverTwelveHours() {
+        queueService.pull("test-queue-url", Duration.ofHours(12).plusSeconds(1));
+    }
+
+    @Test
+    public void assertChangeVisibilityOfDeletedMessageReturnsFalse() {
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "message");
+        PullMessageResult pullResult = queueService.pull(queueUrl);
+        queueService.delete(queueUrl, pullResult.getReceiptHandle());
+
+        assertFalse(queueService.changeVisibility(queueUrl, pullResult.getReceiptHandle(), Duration.ZERO));
+    }
+
+    @Test
+    public void assertPullVisibilityDeadlineIsRoundedUpToSeconds() {
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "message");
+        PullMessageResult pullResult = queueService.pull(queueUrl, Duration.ofMillis(1500));
+
+        assertNotNull(pullResult);
+        assertEquals(pullResult.getReceiptDate().plusSeconds(2), pullResult.getVisibilityDeadline());
+    }
+
+    @Test
+    public void assertPurgeDeletesVisibleMessages() {
+        String queueUrl = "test-queue-url";
+
+        queueService.push(queueUrl, "first");
+        queueService.push(queueUrl, "second");
+        queueService.push(queueUrl, "third");
+        queueService.purgeQueue(queueUrl);
+
+        assertNull(queueService.pull(queueUrl));
+        assertTrue(queueService.listQueues().contains(queueUrl));
+    }
+
+    @Test(timeout = 5000)
+    public void assertPurgeEndsWhileProducerPushes() {
+        String queueUrl = "test-queue-url";
+        AtomicBoolean producing = new AtomicBoolean(true);
+
+        queueService.push(queueUrl, "first");
+        queueService.push(queueUrl, "second");
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            while (producing.get()) {
+                queueService.push(queueUrl, "message");
+            }
+        });
+        try {
+            queueService.purgeQueue(queueUrl);
+        } finally {
+            producing.set(false);
+            producer.join();
+        }
+    }
+
+    @Test(expected = AmazonClientException.class)
+    public void assertPurgeFailsIfMessagesAreNotDeleted() {
+        QueueService failingQueueService = new SqsQueueService(new StubSqsClient(Duration.ofSeconds(30), Duration.ZERO) {
+            @Override
+            public DeleteMessageBatchResult deleteMessageBatch(String queueUrl,
+                                                               List<DeleteMessageBatchRequestEntry> entries) {
+                return new DeleteMessageBatchResult().withFailed(entries.stream()
+                        .map(entry -> new BatchResultErrorEntry()
+                                .withId(entry.getId())
+                                .withCode("InternalError")
+                                .withSenderFault(false))
+                        .collect(Collectors.toList()));
+            }
+        });
+        String queueUrl = "test-queue-url";
+
+        failingQueueService.push(queueUrl, "message");
+        failingQueueService.purgeQueue(queueUrl);
+    }
+
+    @Test
+    public void assertConcurrentPushesWithSameDeduplicationIdSendOneMessage() {
+        QueueService slowQueueService =
+                new SqsQueueService(new StubSqsClient(Duration.ofSeconds(30), Duration.ofMillis(200)));
+        String queueUrl = "test-queue-url";
+
+        CompletableFuture<PushMessageResult> firstPush =
+                CompletableFuture.supplyAsync(() -> slowQueueService.push(queueUrl, "message", "deduplication-id"));
+        CompletableFuture<PushMessageResult> secondPush =
+                CompletableFuture.supplyAsync(() -> slowQueueService.push(queueUrl, "message", "deduplication-id"));
+
+        assertEquals(firstPush.join().getMessageId(), secondPush.join().getMessageId());
+        assertNotNull(slowQueueService.pull(queueUrl));
+        assertNull(slowQueueService.pull(queueUrl));
+    }
+}
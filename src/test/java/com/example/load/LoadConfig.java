@@ -0,0 +1,154 @@
+package com.example.load;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the load generator, read from system properties with {@code load.} prefix.
+ */
+public class LoadConfig {
+
+    private final String backend;
+    private final int producers;
+    private final int consumers;
+    private final int queues;
+    private final int producerRate;
+    private final int minMessageSize;
+    private final int maxMessageSize;
+    private final double deleteRatio;
+    private final double failureRate;
+    private final Duration processingTime;
+    private final Duration visibilityTimeout;
+    private final Duration duration;
+    private final Duration reportInterval;
+    private final String storagePath;
+    private final Duration sqsLatency;
+
+    private LoadConfig() {
+        backend = System.getProperty("load.backend", "memory");
+        producers = Integer.getInteger("load.producers", 4);
+        consumers = Integer.getInteger("load.consumers", 4);
+        queues = Integer.getInteger("load.queues", 8);
+        producerRate = Integer.getInteger("load.producerRate", 500);
+        minMessageSize = Integer.getInteger("load.minMessageSize", 64);
+        maxMessageSize = Integer.getInteger("load.maxMessageSize", 1024);
+        deleteRatio = Double.parseDouble(System.getProperty("load.deleteRatio", "1"));
+        failureRate = Double.parseDouble(System.getProperty("load.failureRate", "0.01"));
+        processingTime = Duration.ofMillis(Long.getLong("load.processingMillis", 0));
+        visibilityTimeout = Duration.ofMillis(Long.getLong("load.visibilityMillis", 5000));
+        duration = Duration.ofSeconds(Long.getLong("load.durationSeconds", 60));
+        reportInterval = Duration.ofSeconds(Long.getLong("load.reportSeconds", 5));
+        storagePath = System.getProperty("load.storagePath");
+        sqsLatency = Duration.ofMillis(Long.getLong("load.sqsLatencyMillis", 0));
+        validate();
+    }
+
+    public static LoadConfig fromSystemProperties() {
+        return new LoadConfig();
+    }
+
+    private void validate() {
+        if (producers <= 0 || consumers <= 0 || queues <= 0) {
+            throw new IllegalArgumentException("Thread and queue counts must be positive");
+        }
+        if (minMessageSize < 0 || maxMessageSize < minMessageSize) {
+            throw new IllegalArgumentException("Invalid message size range");
+        }
+        if (failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("Invalid failure rate");
+        }
+        if (deleteRatio < 0 || deleteRatio > 1) {
+            throw new IllegalArgumentException("Invalid delete ratio");
+        }
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public int getProducers() {
+        return producers;
+    }
+
+    public int getConsumers() {
+        return consumers;
+    }
+
+    public int getQueues() {
+        return queues;
+    }
+
+    /**
+     * @return messages per second for every producer, zero means unlimited.
+     */
+    public int getProducerRate() {
+        return producerRate;
+    }
+
+    public int getMinMessageSize() {
+        return minMessageSize;
+    }
+
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * @return fraction of successfully processed messages that are deleted,
+     * the rest is released back to the queue with zero visibility timeout and pulled again.
+     * Together with the failure rate it sets the pull/delete ratio to about
+     * {@code 1 / (deleteRatio * (1 - failureRate))}.
+     */
+    public double getDeleteRatio() {
+        return deleteRatio;
+    }
+
+    /**
+     * @return probability that a consumer fails processing and leaves the message undeleted.
+     */
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public Duration getProcessingTime() {
+        return processingTime;
+    }
+
+    public Duration getVisibilityTimeout() {
+        return visibilityTimeout;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * @return storage path of the file backend or {@code null} to use a temporary directory,
+     * which is created and deleted by the load generator.
+     */
+    public String getStoragePath() {
+        return storagePath;
+    }
+
+    public Duration getSqsLatency() {
+        return sqsLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "backend=" + backend +
+                ", producers=" + producers +
+                ", consumers=" + consumers +
+                ", queues=" + queues +
+                ", producerRate=" + producerRate +
+                ", messageSize=" + minMessageSize + ".." + maxMessageSize +
+                ", deleteRatio=" + deleteRatio +
+                ", failureRate=" + failureRate +
+                ", processingTime=" + processingTime.toMillis() + "ms" +
+                ", visibilityTimeout=" + visibilityTimeout.toMillis() + "ms" +
+                ", duration=" + duration.getSeconds() + "s";
+    }
+}
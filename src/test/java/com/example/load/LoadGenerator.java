@@ -0,0 +1,338 @@
+package com.example.load;
+
+import com.example.model.PullMessageResult;
+import com.example.service.QueueService;
+import com.example.service.impl.FileQueueService;
+import com.example.service.impl.InMemoryQueueService;
+import com.example.service.impl.SqsQueueService;
+import com.example.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator and soak test for {@code QueueService} implementations.
+ * <p>
+ * Producers push messages with the push time in the body, consumers pull, process and delete them,
+ * failing with the configured rate to leave some messages undeleted until their visibility timeout expires.
+ * Only the configured ratio of processed messages is deleted, the rest is released back to the queue.
+ * Deletes and releases that come after the visibility deadline are counted as expired,
+ * because the message is already visible again and its redelivery is still pending.
+ * Periodically reports throughput, end-to-end latency percentiles (push to delete), redelivery rate,
+ * heap usage and GC activity. See {@link LoadConfig} for the available {@code load.*} system properties.
+ * <p>
+ * Run with {@code mvn -P load-test test-compile exec:java -Dload.backend=memory|file|sqs}.
+ */
+public class LoadGenerator {
+
+    private static final String QUEUE_PREFIX = "load-queue-";
+    private static final char BODY_SEPARATOR = '|';
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LoadConfig config;
+    private final QueueService queueService;
+    private final List<String> queueUrls = new ArrayList<>();
+
+    private final LongAdder pushes = new LongAdder();
+    private final LongAdder pulls = new LongAdder();
+    private final LongAdder emptyPulls = new LongAdder();
+    private final LongAdder deletes = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder redeliveries = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+
+    /**
+     * IDs of pulled and not yet deleted messages, pulling one of them again counts as a redelivery.
+     */
+    private final ConcurrentMap<String, Boolean> pulledMessageIds = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    public LoadGenerator(LoadConfig config, QueueService queueService) {
+        this.config = config;
+        this.queueService = queueService;
+    }
+
+    /**
+     * The file backend uses a temporary directory unless {@code load.storagePath} is set,
+     * only the temporary directory is deleted after the run, a configured storage is kept.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        String storagePath = config.getStoragePath();
+        File temporaryStorage = null;
+        if ("file".equals(config.getBackend()) && storagePath == null) {
+            temporaryStorage = Files.createTempDirectory("load-test").toFile();
+            storagePath = temporaryStorage.getPath();
+        }
+        try {
+            new LoadGenerator(config, createQueueService(config, storagePath)).run();
+        } finally {
+            if (temporaryStorage != null) {
+                FileUtils.deleteDirectory(temporaryStorage);
+            }
+        }
+    }
+
+    private static QueueService createQueueService(LoadConfig config, String storagePath) {
+        switch (config.getBackend()) {
+            case "memory":
+                return new InMemoryQueueService(config.getVisibilityTimeout());
+            case "file":
+                return new FileQueueService(config.getVisibilityTimeout(), storagePath);
+            case "sqs":
+                return new SqsQueueService(new StubSqsClient(config.getVisibilityTimeout(), config.getSqsLatency()));
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + config.getBackend());
+        }
+    }
+
+    public void run() throws InterruptedException {
+        System.out.println("Load test: " + config);
+        for (int i = 0; i < config.getQueues(); i++) {
+            queueUrls.add(queueService.createQueue(QUEUE_PREFIX + i));
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(config.getProducers() + config.getConsumers());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long startNanos = System.nanoTime();
+        Reporter intervalReporter = new Reporter(startNanos);
+
+        for (int i = 0; i < config.getProducers(); i++) {
+            workers.execute(this::produce);
+        }
+        for (int i = 0; i < config.getConsumers(); i++) {
+            workers.execute(this::consume);
+        }
+        long reportMillis = config.getReportInterval().toMillis();
+        reporter.scheduleAtFixedRate(intervalReporter::report, reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(config.getDuration().toMillis());
+        running = false;
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        reporter.shutdown();
+        reporter.awaitTermination(1, TimeUnit.MINUTES);
+
+        totalLatency.add(intervalLatency.drain());
+        printSummary(System.nanoTime() - startNanos);
+    }
+
+    private void produce() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = config.getProducerRate() > 0 ? TimeUnit.SECONDS.toNanos(1) / config.getProducerRate() : 0;
+        long nextPushNanos = System.nanoTime();
+        while (running) {
+            if (intervalNanos > 0) {
+                long delay = nextPushNanos - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                nextPushNanos += intervalNanos;
+            }
+            String queueUrl = queueUrls.get(random.nextInt(queueUrls.size()));
+            try {
+                queueService.push(queueUrl, buildBody(random));
+                pushes.increment();
+            } catch (RuntimeException e) {
+                errors.increment();
+            }
+        }
+    }
+
+    private void consume() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            String queueUrl = queueUrls.get(random.nextInt(queueUrls.size()));
+            PullMessageResult pullResult = pull(queueUrl);
+            if (pullResult == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            process(queueUrl, pullResult, random);
+        }
+    }
+
+    private PullMessageResult pull(String queueUrl) {
+        try {
+            PullMessageResult pullResult = queueService.pull(queueUrl, config.getVisibilityTimeout());
+            if (pullResult == null) {
+                emptyPulls.increment();
+                return null;
+            }
+            pulls.increment();
+            if (pulledMessageIds.putIfAbsent(pullResult.getMessage().getMessageId(), Boolean.TRUE) != null) {
+                redeliveries.increment();
+            }
+            return pullResult;
+        } catch (RuntimeException e) {
+            errors.increment();
+            return null;
+        }
+    }
+
+    private void process(String queueUrl, PullMessageResult pullResult, ThreadLocalRandom random) {
+        if (!config.getProcessingTime().isZero()) {
+            LockSupport.parkNanos(config.getProcessingTime().toNanos());
+        }
+        if (random.nextDouble() < config.getFailureRate()) {
+            failures.increment();
+            return;
+        }
+        try {
+            if (random.nextDouble() >= config.getDeleteRatio()) {
+                release(queueUrl, pullResult);
+            } else {
+                delete(queueUrl, pullResult);
+            }
+        } catch (RuntimeException e) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Deletes the message, the delete of an expired message is a no-op for the service,
+     * so it is counted as expired instead of a delete and the message stays tracked for redelivery.
+     */
+    private void delete(String queueUrl, PullMessageResult pullResult) {
+        boolean isExpired = !Instant.now().isBefore(pullResult.getVisibilityDeadline());
+        queueService.delete(queueUrl, pullResult.getReceiptHandle());
+        if (isExpired) {
+            expired.increment();
+            return;
+        }
+        deletes.increment();
+        pulledMessageIds.remove(pullResult.getMessage().getMessageId());
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - parsePushNanos(pullResult));
+        intervalLatency.record(latencyMicros);
+    }
+
+    /**
+     * Returns the message to the queue immediately, so the next pull of it is not a redelivery.
+     */
+    private void release(String queueUrl, PullMessageResult pullResult) {
+        if (queueService.changeVisibility(queueUrl, pullResult.getReceiptHandle(), Duration.ZERO)) {
+            releases.increment();
+            pulledMessageIds.remove(pullResult.getMessage().getMessageId());
+        } else {
+            expired.increment();
+        }
+    }
+
+    private String buildBody(ThreadLocalRandom random) {
+        int size = random.nextInt(config.getMinMessageSize(), config.getMaxMessageSize() + 1);
+        StringBuilder body = new StringBuilder(size + 20);
+        body.append(System.nanoTime()).append(BODY_SEPARATOR);
+        while (body.length() < size) {
+            body.append((char) ('a' + random.nextInt(26)));
+        }
+        return body.toString();
+    }
+
+    private static long parsePushNanos(PullMessageResult pullResult) {
+        String body = pullResult.getMessage().getBody();
+        return Long.parseLong(body.substring(0, body.indexOf(BODY_SEPARATOR)));
+    }
+
+    private void printSummary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long totalPulls = pulls.sum();
+        System.out.println("Summary:");
+        System.out.printf("  pushed %d (%.0f/s), pulled %d (%.0f/s), deleted %d (%.0f/s)%n",
+                pushes.sum(), pushes.sum() / seconds, totalPulls, totalPulls / seconds,
+                deletes.sum(), deletes.sum() / seconds);
+        System.out.printf("  released %d, expired %d, empty pulls %d, failures %d, redeliveries %d (%.2f%%), errors %d%n",
+                releases.sum(), expired.sum(), emptyPulls.sum(), failures.sum(), redeliveries.sum(),
+                totalPulls > 0 ? 100.0 * redeliveries.sum() / totalPulls : 0, errors.sum());
+        System.out.printf("  latency ms: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                totalLatency.getPercentile(50) / 1e3, totalLatency.getPercentile(90) / 1e3,
+                totalLatency.getPercentile(99) / 1e3, totalLatency.getPercentile(99.9) / 1e3,
+                totalLatency.getMax() / 1e3);
+    }
+
+    /**
+     * Prints the activity since the previous report.
+     */
+    private class Reporter {
+
+        private final long startNanos;
+        private long lastNanos;
+        private long lastPushes;
+        private long lastPulls;
+        private long lastDeletes;
+        private long lastExpired;
+        private long lastRedeliveries;
+        private long lastGcCount;
+        private long lastGcMillis;
+
+        private Reporter(long startNanos) {
+            this.startNanos = startNanos;
+            this.lastNanos = startNanos;
+        }
+
+        private synchronized void report() {
+            long now = System.nanoTime();
+            double seconds = Math.max(now - lastNanos, 1) / 1e9;
+            long currentPushes = pushes.sum();
+            long currentPulls = pulls.sum();
+            long currentDeletes = deletes.sum();
+            long currentExpired = expired.sum();
+            long currentRedeliveries = redeliveries.sum();
+            long intervalPulls = currentPulls - lastPulls;
+
+            long gcCount = 0;
+            long gcMillis = 0;
+            for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcCount += Math.max(gcBean.getCollectionCount(), 0);
+                gcMillis += Math.max(gcBean.getCollectionTime(), 0);
+            }
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            LatencyHistogram latency = intervalLatency.drain();
+            totalLatency.add(latency);
+
+            System.out.printf("[%5ds] push/s %8.0f | pull/s %8.0f | delete/s %8.0f | expired %6d | redelivery %5.2f%% | "
+                            + "latency ms p50 %7.1f p99 %7.1f max %7.1f | in flight %6d | "
+                            + "heap %5d/%5d MB | gc %3d (%4d ms)%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - startNanos),
+                    (currentPushes - lastPushes) / seconds,
+                    intervalPulls / seconds,
+                    (currentDeletes - lastDeletes) / seconds,
+                    currentExpired - lastExpired,
+                    intervalPulls > 0 ? 100.0 * (currentRedeliveries - lastRedeliveries) / intervalPulls : 0,
+                    latency.getPercentile(50) / 1e3, latency.getPercentile(99) / 1e3, latency.getMax() / 1e3,
+                    pulledMessageIds.size(),
+                    heap.getUsed() >> 20, heap.getCommitted() >> 20,
+                    gcCount - lastGcCount, gcMillis - lastGcMillis);
+
+            lastNanos = now;
+            lastPushes = currentPushes;
+            lastPulls = currentPulls;
+            lastDeletes = currentDeletes;
+            lastExpired = currentExpired;
+            lastRedeliveries = currentRedeliveries;
+            lastGcCount = gcCount;
+            lastGcMillis = gcMillis;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.load;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.amazonaws.services.sqs.model.CreateQueueResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.ListQueuesResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+import com.example.model.PullMessageResult;
+import com.example.model.PushMessageResult;
+import com.example.service.QueueService;
+import com.example.service.impl.InMemoryQueueService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stub of {@code AmazonSQSClient} for running {@code SqsQueueService} without AWS.
+ * Operations used by the adapter are served by {@code InMemoryQueueService}
+ * with an optional simulated network round trip.
+ */
+public class StubSqsClient extends AmazonSQSClient {
+
+    private final QueueService queueService;
+    private final Duration latency;
+    /**
+     * Pushed and not deleted messages, it is approximate like the SQS attribute.
+     */
+    private final ConcurrentMap<String, AtomicInteger> messageCountsByQueueUrl = new ConcurrentHashMap<>();
+
+    public StubSqsClient(Duration visibilityTimeout, Duration latency) {
+        this.queueService = new InMemoryQueueService(visibilityTimeout);
+        this.latency = latency;
+    }
+
+    @Override
+    public CreateQueueResult createQueue(String queueName) {
+        simulateLatency();
+        return new CreateQueueResult().withQueueUrl(queueService.createQueue(queueName));
+    }
+
+    @Override
+    public void deleteQueue(String queueUrl) {
+        simulateLatency();
+        queueService.deleteQueue(queueUrl);
+        messageCountsByQueueUrl.remove(queueUrl);
+    }
+
+    @Override
+    public ListQueuesResult listQueues() {
+        simulateLatency();
+        return new ListQueuesResult().withQueueUrls(queueService.listQueues());
+    }
+
+    @Override
+    public SendMessageResult sendMessage(String queueUrl, String messageBody) {
+        simulateLatency();
+        PushMessageResult pushResult = queueService.push(queueUrl, messageBody);
+        messageCount(queueUrl).incrementAndGet();
+        return new SendMessageResult().withMessageId(pushResult.getMessageId());
+    }
+
+    @Override
+    public ReceiveMessageResult receiveMessage(String queueUrl) {
+        return receiveMessage(new ReceiveMessageRequest(queueUrl));
+    }
+
+    @Override
+    public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+        simulateLatency();
+        PullMessageResult pullResult = request.getVisibilityTimeout() != null
+                ? queueService.pull(request.getQueueUrl(), Duration.ofSeconds(request.getVisibilityTimeout()))
+                : queueService.pull(request.getQueueUrl());
+        ReceiveMessageResult result = new ReceiveMessageResult();
+        if (pullResult != null) {
+            result.withMessages(new Message()
+                    .withMessageId(pullResult.getMessage().getMessageId())
+                    .withBody(pullResult.getMessage().getBody())
+                    .withReceiptHandle(pullResult.getReceiptHandle()));
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteMessage(String queueUrl, String receiptHandle) {
+        simulateLatency();
+        queueService.delete(queueUrl, receiptHandle);
+        decrementMessageCount(queueUrl);
+    }
+
+    @Override
+    public DeleteMessageBatchResult deleteMessageBatch(String queueUrl, List<DeleteMessageBatchRequestEntry> entries) {
+        simulateLatency();
+        List<DeleteMessageBatchResultEntry> resultEntries = new ArrayList<>(entries.size());
+        for (DeleteMessageBatchRequestEntry entry : entries) {
+            queueService.delete(queueUrl, entry.getReceiptHandle());
+            decrementMessageCount(queueUrl);
+            resultEntries.add(new DeleteMessageBatchResultEntry().withId(entry.getId()));
+        }
+        return new DeleteMessageBatchResult().withSuccessful(resultEntries);
+    }
+
+    /**
+     * Fails with the same generic error that SQS returns for a stale or expired receipt handle.
+     */
+    @Override
+    public void changeMessageVisibility(String queueUrl, String receiptHandle, Integer visibilityTimeout) {
+        simulateLatency();
+        if (!queueService.changeVisibility(queueUrl, receiptHandle, Duration.ofSeconds(visibilityTimeout))) {
+            AmazonServiceException e = new AmazonServiceException("Message is not in flight: " + receiptHandle);
+            e.setErrorCode("InvalidParameterValue");
+            e.setErrorType(AmazonServiceException.ErrorType.Client);
+            e.setStatusCode(400);
+            throw e;
+        }
+    }
+
+    @Override
+    public GetQueueAttributesResult getQueueAttributes(String queueUrl, List<String> attributeNames) {
+        simulateLatency();
+        String attributeName = QueueAttributeName.ApproximateNumberOfMessages.toString();
+        return new GetQueueAttributesResult().withAttributes(
+                Collections.singletonMap(attributeName, String.valueOf(messageCount(queueUrl).get())));
+    }
+
+    private AtomicInteger messageCount(String queueUrl) {
+        return messageCountsByQueueUrl.computeIfAbsent(queueUrl, url -> new AtomicInteger());
+    }
+
+    private void decrementMessageCount(String queueUrl) {
+        messageCount(queueUrl).updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    private void simulateLatency() {
+        if (!latency.isZero()) {
+            LockSupport.parkNanos(latency.toNanos());
+        }
+    }
+}
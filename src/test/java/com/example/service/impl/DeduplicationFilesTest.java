@@ -0,0 +1,60 @@
+package com.example.service.impl;
+
+import com.example.util.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class DeduplicationFilesTest {
+
+    private static final File STORAGE_DIR = new File("test-deduplication-storage/");
+    // 16 buckets of 1 second
+    private static final Duration WINDOW = Duration.ofSeconds(16);
+
+    @After
+    public void deleteTestDir() {
+        FileUtils.deleteDirectory(STORAGE_DIR);
+    }
+
+    @Test
+    public void assertLookupReadsOnlyRequestedBucket() {
+        DeduplicationFiles deduplicationFiles = new DeduplicationFiles(STORAGE_DIR, WINDOW);
+
+        deduplicationFiles.put("first-id", "first-message-id", Instant.ofEpochMilli(1500));
+        deduplicationFiles.put("second-id", "second-message-id", Instant.ofEpochMilli(2500));
+
+        assertEquals("first-message-id",
+                deduplicationFiles.getMessageId("first-id", Instant.ofEpochMilli(1000), Instant.ofEpochMilli(2000)));
+        assertNull(deduplicationFiles.getMessageId("first-id", Instant.ofEpochMilli(2000), Instant.ofEpochMilli(3000)));
+        assertNull(deduplicationFiles.getMessageId("second-id", Instant.ofEpochMilli(1000), Instant.ofEpochMilli(2000)));
+    }
+
+    @Test
+    public void assertIndexIsRebuiltFromFiles() {
+        Instant now = Instant.now();
+        new DeduplicationFiles(STORAGE_DIR, WINDOW).put("deduplication-id", "message-id", now);
+
+        DeduplicationFiles deduplicationFiles = new DeduplicationFiles(STORAGE_DIR, WINDOW);
+        DeduplicationIndex deduplicationIndex = new DeduplicationIndex(WINDOW, deduplicationFiles);
+        deduplicationFiles.readNewRecords(deduplicationIndex, now);
+
+        assertEquals("message-id", deduplicationIndex.getMessageId("deduplication-id", now));
+        assertNull(deduplicationIndex.getMessageId("other-id", now));
+    }
+
+    @Test
+    public void assertPutRecreatesDeletedDirectory() {
+        DeduplicationFiles deduplicationFiles = new DeduplicationFiles(STORAGE_DIR, WINDOW);
+        FileUtils.deleteDirectory(STORAGE_DIR);
+
+        deduplicationFiles.put("deduplication-id", "message-id", Instant.ofEpochMilli(1500));
+
+        assertEquals("message-id", deduplicationFiles.getMessageId("deduplication-id",
+                Instant.ofEpochMilli(1000), Instant.ofEpochMilli(2000)));
+    }
+}
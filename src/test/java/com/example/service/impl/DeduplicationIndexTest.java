@@ -0,0 +1,116 @@
+package com.example.service.impl;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DeduplicationIndexTest {
+
+    // 16 buckets of 1 second
+    private static final Duration WINDOW = Duration.ofSeconds(16);
+
+    @Test
+    public void assertIdIsRememberedUntilItsBucketLeavesWindow() {
+        DeduplicationIndex deduplicationIndex = new DeduplicationIndex(WINDOW);
+        Instant pushDate = Instant.ofEpochMilli(1500);
+
+        deduplicationIndex.put("deduplication-id", "message-id", pushDate);
+
+        // the bucket [1000, 2000) expires when its end is a window behind now
+        assertEquals("message-id", deduplicationIndex.getMessageId("deduplication-id", Instant.ofEpochMilli(17999)));
+        assertNull(deduplicationIndex.getMessageId("deduplication-id", Instant.ofEpochMilli(18000)));
+    }
+
+    @Test
+    public void assertExpiredFingerprintIsNotAdded() {
+        CountingStore store = new CountingStore();
+        DeduplicationIndex deduplicationIndex = new DeduplicationIndex(WINDOW, store);
+        Instant now = Instant.ofEpochMilli(18000);
+
+        deduplicationIndex.addFingerprint("deduplication-id", Instant.ofEpochMilli(1500), now);
+
+        assertNull(deduplicationIndex.getMessageId("deduplication-id", now));
+        assertEquals(0, store.lookups.get());
+    }
+
+    @Test
+    public void assertStoreIsNotConsultedForNewId() {
+        CountingStore store = new CountingStore();
+        DeduplicationIndex deduplicationIndex = new DeduplicationIndex(WINDOW, store);
+        Instant now = Instant.ofEpochMilli(1500);
+
+        deduplicationIndex.put("first-id", "first-message-id", now);
+
+        assertNull(deduplicationIndex.getMessageId("second-id", now));
+        assertEquals(0, store.lookups.get());
+        assertEquals("first-message-id", deduplicationIndex.getMessageId("first-id", now));
+        assertEquals(1, store.lookups.get());
+    }
+
+    @Test
+    public void assertFingerprintCollisionIsResolvedByStore() {
+        CountingStore store = new CountingStore();
+        DeduplicationIndex deduplicationIndex = new DeduplicationIndex(WINDOW, store, deduplicationId -> 42L);
+        Instant now = Instant.ofEpochMilli(1500);
+
+        deduplicationIndex.put("first-id", "first-message-id", now);
+
+        assertNull(deduplicationIndex.getMessageId("second-id", now));
+        assertEquals(1, store.lookups.get());
+        assertEquals("first-message-id", deduplicationIndex.getMessageId("first-id", now));
+    }
+
+    @Test
+    public void assertCollisionContinuesWithLaterBuckets() {
+        CountingStore store = new CountingStore();
+        DeduplicationIndex deduplicationIndex = new DeduplicationIndex(WINDOW, store, deduplicationId -> 42L);
+
+        deduplicationIndex.put("first-id", "first-message-id", Instant.ofEpochMilli(1500));
+        deduplicationIndex.put("second-id", "second-message-id", Instant.ofEpochMilli(2500));
+
+        assertEquals("second-message-id", deduplicationIndex.getMessageId("second-id", Instant.ofEpochMilli(2500)));
+        assertEquals(2, store.lookups.get());
+    }
+
+    @Test
+    public void assertFingerprintSetKeepsFingerprintsAfterResize() {
+        DeduplicationIndex.FingerprintSet fingerprintSet = new DeduplicationIndex.FingerprintSet();
+        int initialCapacity = fingerprintSet.capacity();
+        int count = initialCapacity * 4;
+
+        // fingerprints with the same low bits probe the same slots
+        for (long i = 1; i <= count; i++) {
+            fingerprintSet.add(i * initialCapacity);
+        }
+        fingerprintSet.add(initialCapacity);
+
+        assertEquals(count, fingerprintSet.size());
+        assertTrue(fingerprintSet.capacity() >= count * 2);
+        for (long i = 1; i <= count; i++) {
+            assertTrue(fingerprintSet.contains(i * initialCapacity));
+        }
+        assertFalse(fingerprintSet.contains((count + 1) * initialCapacity));
+        assertFalse(fingerprintSet.contains(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertTooLongIdIsRejected() {
+        char[] deduplicationId = new char[DeduplicationIndex.MAX_DEDUPLICATION_ID_LENGTH + 1];
+        DeduplicationIndex.checkDeduplicationId(new String(deduplicationId));
+    }
+
+    private static class CountingStore extends DeduplicationIndex.InMemoryStore {
+
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public String getMessageId(String deduplicationId, Instant bucketStart, Instant bucketEnd) {
+            lookups.incrementAndGet();
+            return super.getMessageId(deduplicationId, bucketStart, bucketEnd);
+        }
+    }
+}